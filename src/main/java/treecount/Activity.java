@@ -0,0 +1,23 @@
+package treecount;
+
+/**
+ * Group activities counted by {@link ActivityCounter}. To count another activity, add a constant and register its
+ * objects and animations with the {@link ActivityRegistry}. Activities are compared by identity.
+ */
+final class Activity
+{
+	static final Activity WOODCUTTING = new Activity("WOODCUTTING");
+
+	private final String name;
+
+	Activity(String name)
+	{
+		this.name = name;
+	}
+
+	@Override
+	public String toString()
+	{
+		return name;
+	}
+}
@@ -0,0 +1,342 @@
+package treecount;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Actor;
+import net.runelite.api.GameObject;
+import net.runelite.api.Player;
+import net.runelite.api.coords.WorldPoint;
+
+/**
+ * Counts the players performing an {@link Activity} on each object: objects and animations are classified through the
+ * {@link ActivityRegistry}, players are matched to the object they face through a single tile index shared by every
+ * activity, and the counts are aggregated per object.
+ * <p>
+ * The counter does not talk to the client; callers feed it spawns, animation changes and ticks.
+ */
+@Slf4j
+class ActivityCounter
+{
+	private static final int ORIENTATION_MASK = 2047;
+	private static final int OCTANT_SIZE = 256;
+	// How far past the pickup range a player may turn before being moved to another object, roughly 11 degrees
+	private static final int ORIENTATION_HYSTERESIS = 64;
+	// South, south-west, west, north-west, north, north-east, east, south-east
+	private static final int[] OCTANT_DX = {0, -1, -1, -1, 0, 1, 1, 1};
+	private static final int[] OCTANT_DY = {-1, -1, 0, 1, 1, 1, 0, -1};
+
+	private final ActivityRegistry registry;
+	private final Consumer<PlayerOrientationChanged> orientationListener;
+
+	@Getter
+	private final Map<GameObject, Integer> counts = new HashMap<>();
+	private final Map<Player, GameObject> playerMap = new HashMap<>();
+	@Getter
+	private final Map<GameObject, List<WorldPoint>> objectTiles = new HashMap<>();
+	private final TileIndex tileObjects = new TileIndex();
+	private final Map<GameObject, Activity> objectActivities = new HashMap<>();
+	// This map is used to track player orientation changes for only players that are performing an activity
+	private final Map<Player, Integer> playerOrientationMap = new ConcurrentHashMap<>();
+	// Players whose activity was skipped while throttled, to be counted once the throttle recovers
+	private final Set<Player> deferredPlayers = new HashSet<>();
+
+	/**
+	 * @param registry            classifies objects and animations
+	 * @param orientationListener receives the orientation changes found by {@link #updateOrientations}
+	 */
+	ActivityCounter(ActivityRegistry registry, Consumer<PlayerOrientationChanged> orientationListener)
+	{
+		this.registry = registry;
+		this.orientationListener = orientationListener;
+	}
+
+	/**
+	 * @return activity of the actor's current animation, or null if they aren't performing one
+	 */
+	Activity findActivity(Actor actor)
+	{
+		return registry.findAnimationActivity(actor.getAnimation());
+	}
+
+	void addObject(GameObject gameObject, Activity activity, List<WorldPoint> tiles)
+	{
+		counts.put(gameObject, 0);
+		objectActivities.put(gameObject, activity);
+		objectTiles.put(gameObject, tiles);
+		tiles.forEach(tile -> tileObjects.put(tile, gameObject));
+	}
+
+	void removeObject(GameObject gameObject)
+	{
+		counts.remove(gameObject);
+		objectActivities.remove(gameObject);
+		List<WorldPoint> tiles = objectTiles.remove(gameObject);
+		if (tiles != null)
+		{
+			tiles.forEach(tileObjects::remove);
+		}
+	}
+
+	void clear()
+	{
+		counts.clear();
+		objectActivities.clear();
+		objectTiles.clear();
+		tileObjects.clear();
+		playerMap.clear();
+		playerOrientationMap.clear();
+		deferredPlayers.clear();
+	}
+
+	/**
+	 * Zeroes every count but keeps the objects
+	 */
+	void resetCounts()
+	{
+		counts.replaceAll((k, v) -> 0);
+	}
+
+	/**
+	 * Remembers a player spawned during the first run, to be counted by {@link #addActivePlayers()}
+	 */
+	void registerPlayer(Player player)
+	{
+		playerMap.put(player, null);
+	}
+
+	/**
+	 * Remembers a player and starts tracking their orientation
+	 */
+	void registerPlayerOrientation(Player player)
+	{
+		playerMap.putIfAbsent(player, null);
+		playerOrientationMap.put(player, -1);
+	}
+
+	void unregisterPlayer(Player player)
+	{
+		playerMap.remove(player);
+		playerOrientationMap.remove(player);
+		deferredPlayers.remove(player);
+	}
+
+	/**
+	 * Counts every remembered player that is currently performing an activity
+	 */
+	void addActivePlayers()
+	{
+		for (Player player : playerMap.keySet())
+		{
+			if (findActivity(player) != null && !counts.isEmpty())
+			{
+				add(player);
+			}
+		}
+	}
+
+	/**
+	 * Remembers a player whose activity was skipped, to be counted by {@link #addDeferredPlayers}
+	 */
+	void defer(Player player)
+	{
+		deferredPlayers.add(player);
+	}
+
+	/**
+	 * Counts the deferred players that match the filter and are still performing an activity. Players that stopped
+	 * are forgotten, the rest stay deferred.
+	 *
+	 * @param filter only players matching this are counted
+	 */
+	void addDeferredPlayers(Predicate<Player> filter)
+	{
+		if (deferredPlayers.isEmpty())
+		{
+			return;
+		}
+
+		for (Iterator<Player> iterator = deferredPlayers.iterator(); iterator.hasNext(); )
+		{
+			Player player = iterator.next();
+			if (findActivity(player) == null)
+			{
+				iterator.remove();
+			}
+			else if (filter.test(player))
+			{
+				iterator.remove();
+				add(player);
+			}
+		}
+	}
+
+	/**
+	 * Fires a {@link PlayerOrientationChanged} for each tracked player whose orientation changed since the last call
+	 *
+	 * @param tick         current tick, used to rotate the sample
+	 * @param sampleStride check one in this many players each tick, or 1 to check them all
+	 * @param filter       only players matching this are checked
+	 */
+	void updateOrientations(int tick, int sampleStride, Predicate<Player> filter)
+	{
+		if (playerOrientationMap.isEmpty())
+		{
+			return;
+		}
+
+		int sample = tick;
+		for (Map.Entry<Player, Integer> playerOrientationEntry : playerOrientationMap.entrySet())
+		{
+			Player player = playerOrientationEntry.getKey();
+			if ((sampleStride > 1 && sample++ % sampleStride != 0) || !filter.test(player))
+			{
+				continue;
+			}
+
+			int previousOrientation = playerOrientationEntry.getValue();
+			int currentOrientation = player.getOrientation();
+
+			if (currentOrientation != previousOrientation)
+			{
+				orientationListener.accept(new PlayerOrientationChanged(player, previousOrientation, currentOrientation));
+			}
+		}
+	}
+
+	/**
+	 * Moves the player to the object they now face, unless they are still facing their current one
+	 */
+	void orientationChanged(Player player, int currentOrientation)
+	{
+		playerOrientationMap.put(player, currentOrientation);
+
+		GameObject currentObject = playerMap.get(player);
+		Activity activity = findActivity(player);
+		if (activity != null && currentObject != null && isStillFacing(player, currentObject, activity))
+		{
+			return;
+		}
+
+		remove(player); // Remove the previous tracked case
+		if (activity != null)
+		{
+			add(player);
+		}
+	}
+
+	void add(Player player)
+	{
+		Activity activity = findActivity(player);
+		if (activity == null)
+		{
+			return;
+		}
+
+		GameObject closestObject = findClosestFacingObject(player, activity);
+		if (log.isDebugEnabled())
+		{
+			log.debug("Player {} {} facing {} at orientation {}", player.getName(), activity, closestObject, player.getOrientation());
+		}
+		if (closestObject == null)
+		{
+			return;
+		}
+		playerMap.put(player, closestObject);
+		counts.merge(closestObject, 1, Integer::sum);
+	}
+
+	void remove(Player player)
+	{
+		GameObject gameObject = playerMap.get(player);
+		playerMap.remove(player);
+		deferredPlayers.remove(player);
+		counts.computeIfPresent(gameObject, (unused, value) -> Math.max(0, value - 1));
+	}
+
+	/**
+	 * Finds the object the actor faces, checking all eight neighboring tiles
+	 *
+	 * @param activity only consider objects of this activity, or null for any
+	 * @return the faced object, or null if there is none
+	 */
+	GameObject findClosestFacingObject(Actor actor, Activity activity)
+	{
+		WorldPoint actorLocation = actor.getWorldLocation();
+		int orientation = actor.getOrientation() & ORIENTATION_MASK;
+		int octant = getOctant(orientation);
+
+		GameObject gameObject = getNeighborObject(actorLocation, octant, activity);
+		if (gameObject != null)
+		{
+			return gameObject;
+		}
+
+		// Large objects can be used from their corners, so fall back to the neighboring octant the orientation leans towards
+		int leaningOctant = ((orientation + OCTANT_SIZE / 2) & (OCTANT_SIZE - 1)) < OCTANT_SIZE / 2 ? octant - 1 : octant + 1;
+		return getNeighborObject(actorLocation, leaningOctant & 7, activity);
+	}
+
+	/**
+	 * Checks whether the actor still faces the given object, allowing for {@link #ORIENTATION_HYSTERESIS} of slack
+	 * beyond the boundary where {@link #findClosestFacingObject} stops picking it up. That boundary is halfway to the
+	 * neighboring octant when another object is there, or the far side of the neighboring octant when it is empty and
+	 * the object is only found through the fallback. This stops small orientation jitter from reassigning a player
+	 * between neighboring objects, while turning to face another object head on still moves them.
+	 */
+	private boolean isStillFacing(Actor actor, GameObject gameObject, Activity activity)
+	{
+		WorldPoint actorLocation = actor.getWorldLocation();
+		int orientation = actor.getOrientation() & ORIENTATION_MASK;
+		GameObject facedObject = getNeighborObject(actorLocation, getOctant(orientation), activity);
+		if (facedObject == gameObject)
+		{
+			return true;
+		}
+
+		// Past the object's own octant, another object in the faced octant takes over sooner than the fallback would
+		int boundary = facedObject == null ? OCTANT_SIZE : OCTANT_SIZE / 2;
+		for (int octant = 0; octant < 8; octant++)
+		{
+			if (getNeighborObject(actorLocation, octant, null) != gameObject)
+			{
+				continue;
+			}
+
+			int difference = Math.abs(orientation - octant * OCTANT_SIZE) & ORIENTATION_MASK;
+			if (Math.min(difference, ORIENTATION_MASK + 1 - difference) <= boundary + ORIENTATION_HYSTERESIS)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Orientation is 0 (south) to 2047, increasing clockwise through west, north and east
+	 *
+	 * @return octant 0 (south) to 7 (south-east), in the same order as {@link #OCTANT_DX} and {@link #OCTANT_DY}
+	 */
+	private static int getOctant(int orientation)
+	{
+		return ((orientation + OCTANT_SIZE / 2) & ORIENTATION_MASK) / OCTANT_SIZE;
+	}
+
+	private GameObject getNeighborObject(WorldPoint point, int octant, Activity activity)
+	{
+		GameObject gameObject = tileObjects.get(point.getX() + OCTANT_DX[octant], point.getY() + OCTANT_DY[octant], point.getPlane());
+		if (gameObject == null || (activity != null && objectActivities.get(gameObject) != activity))
+		{
+			return null;
+		}
+		return gameObject;
+	}
+}
@@ -0,0 +1,92 @@
+package treecount;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps object IDs and animation IDs to the {@link Activity} they belong to. A player is counted on an object when the
+ * activity of their animation matches the activity of the object they are facing.
+ */
+final class ActivityRegistry
+{
+	private final Map<Integer, Activity> objects;
+	// Indexed by animation ID, since animations are looked up for every player on every tick
+	private final Activity[] animations;
+
+	private ActivityRegistry(Map<Integer, Activity> objects, Activity[] animations)
+	{
+		this.objects = objects;
+		this.animations = animations;
+	}
+
+	static Builder builder()
+	{
+		return new Builder();
+	}
+
+	/**
+	 * Finds the activity that the given object belongs to
+	 *
+	 * @param objectId
+	 * @return activity of the object, or null if it's not registered
+	 */
+	Activity findObjectActivity(int objectId)
+	{
+		return objects.get(objectId);
+	}
+
+	/**
+	 * Finds the activity that the given animation belongs to
+	 *
+	 * @param animationId
+	 * @return activity of the animation, or null if it's not registered
+	 */
+	Activity findAnimationActivity(int animationId)
+	{
+		return animationId >= 0 && animationId < animations.length ? animations[animationId] : null;
+	}
+
+	static final class Builder
+	{
+		private final ImmutableMap.Builder<Integer, Activity> objects = new ImmutableMap.Builder<>();
+		private final Map<Integer, Activity> animations = new HashMap<>();
+
+		private Builder()
+		{
+		}
+
+		Builder objects(Activity activity, int... objectIds)
+		{
+			for (int objectId : objectIds)
+			{
+				objects.put(objectId, activity);
+			}
+			return this;
+		}
+
+		Builder animations(Activity activity, int... animationIds)
+		{
+			for (int animationId : animationIds)
+			{
+				if (animationId < 0)
+				{
+					throw new IllegalArgumentException("Invalid animation " + animationId);
+				}
+				if (animations.put(animationId, activity) != null)
+				{
+					throw new IllegalArgumentException("Animation " + animationId + " is already registered");
+				}
+			}
+			return this;
+		}
+
+		ActivityRegistry build()
+		{
+			int maxAnimationId = animations.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1);
+			Activity[] animationArray = new Activity[maxAnimationId + 1];
+			animations.forEach((animationId, activity) -> animationArray[animationId] = activity);
+			return new ActivityRegistry(objects.build(), animationArray);
+		}
+	}
+}
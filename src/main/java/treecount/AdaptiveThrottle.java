@@ -0,0 +1,81 @@
+package treecount;
+
+import lombok.Getter;
+
+/**
+ * Tracks how long the plugin spends handling events each tick, and switches to a degraded mode when it keeps going
+ * over budget, e.g. forestry events with 100+ players in the scene.
+ */
+class AdaptiveThrottle
+{
+	// While degraded, each player's orientation is only checked every SAMPLE_STRIDE ticks
+	static final int SAMPLE_STRIDE = 4;
+	private static final int DEGRADE_AFTER_TICKS = 3;
+	private static final int RECOVER_AFTER_TICKS = 10;
+
+	@Getter
+	private boolean degraded;
+	@Getter
+	private long lastTickNanos;
+	private long currentTickNanos;
+	private int overBudgetTicks;
+	private int underBudgetTicks;
+
+	void add(long nanos)
+	{
+		currentTickNanos += nanos;
+	}
+
+	/**
+	 * Closes out the current tick's measurement and updates the mode
+	 *
+	 * @param enabled     whether adaptive throttling is enabled
+	 * @param budgetNanos time the plugin may spend per tick before degrading
+	 */
+	void endTick(boolean enabled, long budgetNanos)
+	{
+		lastTickNanos = currentTickNanos;
+		currentTickNanos = 0;
+
+		if (!enabled)
+		{
+			degraded = false;
+			overBudgetTicks = 0;
+			underBudgetTicks = 0;
+			return;
+		}
+
+		// Degraded ticks only do a fraction of the work, so scale them up to estimate what a full tick would cost
+		long estimatedNanos = degraded ? lastTickNanos * SAMPLE_STRIDE : lastTickNanos;
+		if (estimatedNanos > budgetNanos)
+		{
+			underBudgetTicks = 0;
+			if (++overBudgetTicks >= DEGRADE_AFTER_TICKS)
+			{
+				degraded = true;
+			}
+		}
+		else if (estimatedNanos <= budgetNanos / 2)
+		{
+			overBudgetTicks = 0;
+			if (degraded && ++underBudgetTicks >= RECOVER_AFTER_TICKS)
+			{
+				degraded = false;
+			}
+		}
+		else
+		{
+			overBudgetTicks = 0;
+			underBudgetTicks = 0;
+		}
+	}
+
+	void reset()
+	{
+		degraded = false;
+		lastTickNanos = 0;
+		currentTickNanos = 0;
+		overBudgetTicks = 0;
+		underBudgetTicks = 0;
+	}
+}
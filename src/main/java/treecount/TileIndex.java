@@ -0,0 +1,143 @@
+package treecount;
+
+import java.util.Arrays;
+import net.runelite.api.GameObject;
+import net.runelite.api.coords.WorldPoint;
+
+/**
+ * Maps world tiles to the object on them. Tiles are packed into int keys in an open addressing table, so lookups don't
+ * allocate a {@link WorldPoint} or box a key.
+ */
+final class TileIndex
+{
+	private static final int EMPTY = -1;
+	private static final int INITIAL_CAPACITY = 256;
+
+	private int[] keys;
+	private GameObject[] values;
+	private int mask;
+	private int size;
+
+	TileIndex()
+	{
+		allocate(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Packs a tile into a non-negative key: 2 bits of plane, 14 bits each of x and y
+	 */
+	static int pack(int x, int y, int plane)
+	{
+		return (plane & 0x3) << 28 | (x & 0x3FFF) << 14 | (y & 0x3FFF);
+	}
+
+	GameObject get(int x, int y, int plane)
+	{
+		int key = pack(x, y, plane);
+		for (int slot = slot(key); keys[slot] != EMPTY; slot = (slot + 1) & mask)
+		{
+			if (keys[slot] == key)
+			{
+				return values[slot];
+			}
+		}
+		return null;
+	}
+
+	void put(WorldPoint point, GameObject gameObject)
+	{
+		if ((size + 1) * 2 > keys.length)
+		{
+			resize();
+		}
+		insert(pack(point.getX(), point.getY(), point.getPlane()), gameObject);
+	}
+
+	void remove(WorldPoint point)
+	{
+		int key = pack(point.getX(), point.getY(), point.getPlane());
+		int slot = slot(key);
+		while (keys[slot] != key)
+		{
+			if (keys[slot] == EMPTY)
+			{
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		// Shift back any following entries that would no longer be reachable across the emptied slot
+		int next = slot;
+		while (true)
+		{
+			next = (next + 1) & mask;
+			if (keys[next] == EMPTY)
+			{
+				break;
+			}
+
+			int ideal = slot(keys[next]);
+			boolean reachable = slot <= next ? (ideal > slot && ideal <= next) : (ideal > slot || ideal <= next);
+			if (!reachable)
+			{
+				keys[slot] = keys[next];
+				values[slot] = values[next];
+				slot = next;
+			}
+		}
+		keys[slot] = EMPTY;
+		values[slot] = null;
+		size--;
+	}
+
+	void clear()
+	{
+		Arrays.fill(keys, EMPTY);
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	private void insert(int key, GameObject gameObject)
+	{
+		int slot = slot(key);
+		while (keys[slot] != EMPTY && keys[slot] != key)
+		{
+			slot = (slot + 1) & mask;
+		}
+		if (keys[slot] == EMPTY)
+		{
+			size++;
+		}
+		keys[slot] = key;
+		values[slot] = gameObject;
+	}
+
+	private void resize()
+	{
+		int[] oldKeys = keys;
+		GameObject[] oldValues = values;
+		allocate(oldKeys.length * 2);
+		for (int i = 0; i < oldKeys.length; i++)
+		{
+			if (oldKeys[i] != EMPTY)
+			{
+				insert(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+
+	private void allocate(int capacity)
+	{
+		keys = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+		values = new GameObject[capacity];
+		mask = capacity - 1;
+		size = 0;
+	}
+
+	private int slot(int key)
+	{
+		int hash = key * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+}
@@ -3,6 +3,7 @@ package treecount;
 import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
+import net.runelite.client.config.Range;
 
 @ConfigGroup("treecount")
 public interface TreeCountConfig extends Config
@@ -25,4 +26,47 @@ public interface TreeCountConfig extends Config
 	{
 		return false;
 	}
+
+	@ConfigItem(
+		keyName = "renderThrottleState",
+		name = "(Debug) Show throttle state",
+		description = "Configures whether to show debug info about the adaptive throttling above your player"
+	)
+	default boolean renderThrottleState()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "adaptiveThrottling",
+		name = "Adaptive throttling",
+		description = "In crowded scenes that exceed the tick budget, check orientations less often and only track trees near you"
+	)
+	default boolean adaptiveThrottling()
+	{
+		return true;
+	}
+
+	@Range(
+		min = 0
+	)
+	@ConfigItem(
+		keyName = "tickBudget",
+		name = "Tick budget (microseconds)",
+		description = "Time the plugin may spend per game tick before adaptive throttling kicks in"
+	)
+	default int tickBudget()
+	{
+		return 1000;
+	}
+
+	@ConfigItem(
+		keyName = "recordHistory",
+		name = "Record history",
+		description = "Records the number of players chopping each tree to .runelite/tree-count for offline analysis"
+	)
+	default boolean recordHistory()
+	{
+		return false;
+	}
 }
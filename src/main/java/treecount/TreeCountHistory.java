@@ -0,0 +1,351 @@
+package treecount;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.GameObject;
+import net.runelite.client.RuneLite;
+
+/**
+ * Samples the tree counts every game tick and appends them to a daily history file.
+ * <p>
+ * Rows are buffered column by column on the client thread and handed off to the executor in blocks, so the client
+ * thread never touches the disk. Each block is laid out as:
+ * <pre>
+ * int   payload length (bytes following this field)
+ * long  epoch millis of the first row
+ * int   row count
+ * int   tick of the first row
+ * tick column:   unsigned varint deltas from the previous row's tick
+ * region column: zigzag varint deltas from the previous row's region ID
+ * object column: unsigned varint tree object IDs, which stay stable when {@link Tree} changes
+ * count column:  zigzag varint deltas from the previous row's choppers
+ * </pre>
+ * Files start with {@link #MAGIC} and are read back with {@link TreeCountHistoryReader}. A block left incomplete by
+ * the client being killed mid write is truncated away the next time the file is opened. A day's file written by another
+ * format version is left alone, and rows go to {@code history-<date>-1.tch} (or the next free number) instead.
+ */
+@Slf4j
+@Singleton
+class TreeCountHistory
+{
+	static final File HISTORY_DIR = new File(RuneLite.RUNELITE_DIR, "tree-count");
+	static final int MAGIC = 0x54434832; // "TCH2"
+	static final String FILE_PREFIX = "history-";
+	static final String FILE_SUFFIX = ".tch";
+
+	private static final int BLOCK_ROWS = 4096;
+	// Flush at least once a minute (100 ticks) so a crash loses little data
+	private static final int FLUSH_TICKS = 100;
+	// Smallest valid payload length: start millis, row count and first tick
+	static final int MIN_PAYLOAD_BYTES = Long.BYTES + Integer.BYTES + Integer.BYTES;
+	private static final int HEADER_BYTES = Integer.BYTES + MIN_PAYLOAD_BYTES;
+	// Worst case per row: 5 bytes each for the tick, region, object and count varints
+	private static final int MAX_ROW_BYTES = 20;
+
+	private final Executor executor;
+	private final File directory;
+
+	// Client thread state
+	private Block block = new Block();
+
+	// Executor thread state
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(HEADER_BYTES + BLOCK_ROWS * MAX_ROW_BYTES);
+	private FileChannel channel;
+	private LocalDate channelDate;
+
+	@Inject
+	TreeCountHistory(ScheduledExecutorService executor)
+	{
+		this(executor, HISTORY_DIR);
+	}
+
+	TreeCountHistory(Executor executor, File directory)
+	{
+		this.executor = executor;
+		this.directory = directory;
+	}
+
+	/**
+	 * Records one row per tree with at least one chopper. Must be called on the client thread.
+	 *
+	 * @param tick    the current game tick
+	 * @param treeMap the current tree counts
+	 */
+	void record(int tick, Map<GameObject, Integer> treeMap)
+	{
+		// The tick count restarts on login, so start a new block rather than storing a negative delta
+		if (block.size > 0 && (tick < block.firstTick || tick - block.firstTick >= FLUSH_TICKS))
+		{
+			flush();
+		}
+
+		for (Map.Entry<GameObject, Integer> entry : treeMap.entrySet())
+		{
+			int choppers = entry.getValue();
+			if (choppers <= 0)
+			{
+				continue;
+			}
+
+			GameObject gameObject = entry.getKey();
+			if (Tree.findTree(gameObject.getId()) == null)
+			{
+				continue;
+			}
+
+			if (block.size == BLOCK_ROWS)
+			{
+				flush();
+			}
+			block.add(tick, gameObject.getWorldLocation().getRegionID(), gameObject.getId(), choppers);
+		}
+	}
+
+	/**
+	 * Hands the buffered rows to the executor to be written out. Must be called on the client thread.
+	 */
+	void flush()
+	{
+		if (block.size == 0)
+		{
+			return;
+		}
+
+		final Block full = block;
+		block = new Block();
+		executor.execute(() -> write(full));
+	}
+
+	/**
+	 * Flushes the buffered rows and closes the history file once they are written.
+	 */
+	void close()
+	{
+		flush();
+		executor.execute(this::closeChannel);
+	}
+
+	private void write(Block block)
+	{
+		try
+		{
+			LocalDate date = Instant.ofEpochMilli(block.startMillis).atZone(ZoneId.systemDefault()).toLocalDate();
+			if (!date.equals(channelDate))
+			{
+				closeChannel();
+				openChannel(date);
+			}
+
+			buffer.clear();
+			buffer.position(Integer.BYTES);
+			buffer.putLong(block.startMillis);
+			buffer.putInt(block.size);
+			buffer.putInt(block.firstTick);
+
+			int previous = block.firstTick;
+			for (int i = 0; i < block.size; i++)
+			{
+				putVarInt(buffer, block.ticks[i] - previous);
+				previous = block.ticks[i];
+			}
+
+			previous = 0;
+			for (int i = 0; i < block.size; i++)
+			{
+				putZigZagVarInt(buffer, block.regions[i] - previous);
+				previous = block.regions[i];
+			}
+
+			for (int i = 0; i < block.size; i++)
+			{
+				putVarInt(buffer, block.objectIds[i]);
+			}
+
+			previous = 0;
+			for (int i = 0; i < block.size; i++)
+			{
+				putZigZagVarInt(buffer, block.counts[i] - previous);
+				previous = block.counts[i];
+			}
+
+			buffer.putInt(0, buffer.position() - Integer.BYTES);
+			buffer.flip();
+			while (buffer.hasRemaining())
+			{
+				channel.write(buffer);
+			}
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to write tree count history", e);
+			closeChannel();
+		}
+	}
+
+	private void openChannel(LocalDate date) throws IOException
+	{
+		if (!directory.exists() && !directory.mkdirs())
+		{
+			throw new IOException("Unable to create " + directory);
+		}
+
+		// A file from another format version is never appended to or truncated, roll over to the next name instead
+		for (int rollover = 0; ; rollover++)
+		{
+			File file = new File(directory, FILE_PREFIX + date + (rollover == 0 ? "" : "-" + rollover) + FILE_SUFFIX);
+			FileChannel candidate = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+			long validSize;
+			try
+			{
+				validSize = findValidSize(candidate);
+			}
+			catch (IOException e)
+			{
+				candidate.close();
+				throw e;
+			}
+
+			if (validSize < 0)
+			{
+				log.warn("{} is not a tree count history file of this version, leaving it untouched", file);
+				candidate.close();
+				continue;
+			}
+
+			if (validSize < candidate.size())
+			{
+				log.warn("Truncating incomplete tree count history {} from {} to {} bytes", file, candidate.size(), validSize);
+				candidate.truncate(validSize);
+			}
+
+			if (validSize == 0)
+			{
+				ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).putInt(0, MAGIC);
+				candidate.write(magic);
+			}
+
+			channel = candidate;
+			channelDate = date;
+			return;
+		}
+	}
+
+	/**
+	 * Walks the block length prefixes to find where the last complete block ends, so new blocks are never appended
+	 * after a partially written one.
+	 *
+	 * @return size of the file up to the last complete block, 0 if the file is empty, or -1 if the file doesn't start
+	 * with {@link #MAGIC}
+	 */
+	private static long findValidSize(FileChannel channel) throws IOException
+	{
+		final long size = channel.size();
+		if (size == 0)
+		{
+			return 0;
+		}
+
+		final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+		if (size < Integer.BYTES || readInt(channel, header, 0) != MAGIC)
+		{
+			return -1;
+		}
+
+		long position = Integer.BYTES;
+		while (position + Integer.BYTES <= size)
+		{
+			int length = readInt(channel, header, position);
+			if (length < MIN_PAYLOAD_BYTES || position + Integer.BYTES + length > size)
+			{
+				break;
+			}
+			position += Integer.BYTES + length;
+		}
+		return position;
+	}
+
+	private static int readInt(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+	{
+		buffer.clear();
+		while (buffer.hasRemaining())
+		{
+			if (channel.read(buffer, position + buffer.position()) < 0)
+			{
+				throw new IOException("Unexpected end of file");
+			}
+		}
+		return buffer.getInt(0);
+	}
+
+	private void closeChannel()
+	{
+		if (channel == null)
+		{
+			return;
+		}
+
+		try
+		{
+			channel.close();
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to close tree count history", e);
+		}
+		channel = null;
+		channelDate = null;
+	}
+
+	private static void putVarInt(ByteBuffer buffer, int value)
+	{
+		while ((value & ~0x7F) != 0)
+		{
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	private static void putZigZagVarInt(ByteBuffer buffer, int value)
+	{
+		putVarInt(buffer, (value << 1) ^ (value >> 31));
+	}
+
+	private static final class Block
+	{
+		private final int[] ticks = new int[BLOCK_ROWS];
+		private final int[] regions = new int[BLOCK_ROWS];
+		private final int[] objectIds = new int[BLOCK_ROWS];
+		private final int[] counts = new int[BLOCK_ROWS];
+		private long startMillis;
+		private int firstTick;
+		private int size;
+
+		private void add(int tick, int region, int objectId, int count)
+		{
+			if (size == 0)
+			{
+				startMillis = System.currentTimeMillis();
+				firstTick = tick;
+			}
+			ticks[size] = tick;
+			regions[size] = region;
+			objectIds[size] = objectId;
+			counts[size] = count;
+			size++;
+		}
+	}
+}
@@ -0,0 +1,217 @@
+package treecount;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reads the history files written by {@link TreeCountHistory} for offline analysis, e.g. peak choppers per tree type,
+ * region or hour of the day.
+ */
+@Slf4j
+public final class TreeCountHistoryReader
+{
+	private static final long TICK_MILLIS = 600;
+
+	private TreeCountHistoryReader()
+	{
+	}
+
+	@Value
+	public static class Sample
+	{
+		/**
+		 * Approximate wall clock time of the tick, derived from the block timestamp
+		 */
+		long timestamp;
+		int tick;
+		int regionId;
+		int objectId;
+		/**
+		 * Tree type of the object, or null if the object ID is no longer part of {@link Tree}
+		 */
+		Tree tree;
+		int choppers;
+	}
+
+	/**
+	 * Reads every history file in the given directory in file name (and therefore date) order. Files written by another
+	 * format version are skipped.
+	 *
+	 * @param directory directory containing history files, usually {@code ~/.runelite/tree-count}
+	 * @param consumer  receives every sample
+	 * @throws IOException if a file can't be read
+	 */
+	public static void readAll(Path directory, Consumer<Sample> consumer) throws IOException
+	{
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+			TreeCountHistory.FILE_PREFIX + "*" + TreeCountHistory.FILE_SUFFIX))
+		{
+			List<Path> files = new ArrayList<>();
+			stream.forEach(files::add);
+			// Sort without the suffix so a day's rollover files, e.g. history-<date>-1.tch, follow the day's first file
+			files.sort(Comparator.comparing(TreeCountHistoryReader::getBaseName));
+			for (Path file : files)
+			{
+				if (!hasMagic(file))
+				{
+					log.warn("Skipping {}, it is not a tree count history file of this version", file);
+					continue;
+				}
+				read(file, consumer);
+			}
+		}
+	}
+
+	/**
+	 * Reads a single history file. A truncated trailing block, e.g. from the client being killed mid write, is skipped.
+	 *
+	 * @param file     history file
+	 * @param consumer receives every sample
+	 * @throws IOException if the file can't be read, is not a history file, or contains a corrupt block
+	 */
+	public static void read(Path file, Consumer<Sample> consumer) throws IOException
+	{
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			buffer = ByteBuffer.allocate((int) channel.size());
+			while (buffer.hasRemaining())
+			{
+				if (channel.read(buffer) < 0)
+				{
+					break;
+				}
+			}
+		}
+		buffer.flip();
+
+		if (buffer.remaining() < Integer.BYTES || buffer.getInt() != TreeCountHistory.MAGIC)
+		{
+			throw new IOException(file + " is not a tree count history file");
+		}
+
+		while (buffer.remaining() >= Integer.BYTES)
+		{
+			int offset = buffer.position();
+			int length = buffer.getInt();
+			if (length < TreeCountHistory.MIN_PAYLOAD_BYTES)
+			{
+				throw new IOException("Corrupt block length " + length + " at offset " + offset + " of " + file);
+			}
+			if (length > buffer.remaining())
+			{
+				log.debug("Skipping truncated block at the end of {}", file);
+				return;
+			}
+
+			ByteBuffer block = buffer.slice();
+			block.limit(length);
+			buffer.position(buffer.position() + length);
+
+			try
+			{
+				readBlock(block, consumer);
+			}
+			catch (BufferUnderflowException e)
+			{
+				throw new IOException("Corrupt block at offset " + offset + " of " + file, e);
+			}
+		}
+	}
+
+	private static String getBaseName(Path file)
+	{
+		String name = file.getFileName().toString();
+		return name.substring(0, name.length() - TreeCountHistory.FILE_SUFFIX.length());
+	}
+
+	private static boolean hasMagic(Path file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+			while (header.hasRemaining())
+			{
+				if (channel.read(header) < 0)
+				{
+					return false;
+				}
+			}
+			return header.getInt(0) == TreeCountHistory.MAGIC;
+		}
+	}
+
+	private static void readBlock(ByteBuffer block, Consumer<Sample> consumer)
+	{
+		long startMillis = block.getLong();
+		int rows = block.getInt();
+		int firstTick = block.getInt();
+		if (rows < 0 || rows > block.remaining())
+		{
+			// Every row takes at least one byte per column, so this can only be a corrupt row count
+			throw new BufferUnderflowException();
+		}
+
+		int[] ticks = new int[rows];
+		int previous = firstTick;
+		for (int i = 0; i < rows; i++)
+		{
+			previous += getVarInt(block);
+			ticks[i] = previous;
+		}
+
+		int[] regions = new int[rows];
+		previous = 0;
+		for (int i = 0; i < rows; i++)
+		{
+			previous += getZigZagVarInt(block);
+			regions[i] = previous;
+		}
+
+		int[] objectIds = new int[rows];
+		for (int i = 0; i < rows; i++)
+		{
+			objectIds[i] = getVarInt(block);
+		}
+
+		previous = 0;
+		for (int i = 0; i < rows; i++)
+		{
+			previous += getZigZagVarInt(block);
+			long timestamp = startMillis + (ticks[i] - firstTick) * TICK_MILLIS;
+			consumer.accept(new Sample(timestamp, ticks[i], regions[i], objectIds[i], Tree.findTree(objectIds[i]), previous));
+		}
+	}
+
+	private static int getVarInt(ByteBuffer buffer)
+	{
+		int value = 0;
+		for (int shift = 0; ; shift += 7)
+		{
+			byte b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+			{
+				return value;
+			}
+		}
+	}
+
+	private static int getZigZagVarInt(ByteBuffer buffer)
+	{
+		int zigzag = getVarInt(buffer);
+		return (zigzag >>> 1) ^ -(zigzag & 1);
+	}
+}
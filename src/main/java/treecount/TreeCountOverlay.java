@@ -8,11 +8,13 @@ import java.util.Map;
 import java.util.Random;
 import java.util.WeakHashMap;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.Client;
 import net.runelite.api.GameObject;
 import net.runelite.api.Perspective;
+import net.runelite.api.Player;
 import net.runelite.api.Point;
 import net.runelite.api.coords.LocalPoint;
 import net.runelite.client.ui.overlay.Overlay;
@@ -99,6 +101,10 @@ public class TreeCountOverlay extends Overlay
 			renderTreeTiles(graphics);
 		}
 
+		if (config.renderThrottleState())
+		{
+			renderThrottleState(graphics);
+		}
 	}
 
 	private void renderFacingTree(Graphics2D graphics)
@@ -113,6 +119,23 @@ public class TreeCountOverlay extends Overlay
 		}
 	}
 
+	private void renderThrottleState(Graphics2D graphics)
+	{
+		Player localPlayer = client.getLocalPlayer();
+		if (localPlayer == null)
+		{
+			return;
+		}
+
+		AdaptiveThrottle throttle = plugin.getThrottle();
+		String text = (throttle.isDegraded() ? "Throttled " : "Normal ") + TimeUnit.NANOSECONDS.toMicros(throttle.getLastTickNanos()) + "us";
+		Point point = Perspective.getCanvasTextLocation(client, graphics, localPlayer.getLocalLocation(), text, localPlayer.getLogicalHeight() + 40);
+		if (point != null)
+		{
+			OverlayUtil.renderTextLocation(graphics, point, text, throttle.isDegraded() ? Color.ORANGE : Color.GREEN);
+		}
+	}
+
 	private void renderTreeTiles(Graphics2D graphics)
 	{
 		plugin.getTreeTileMap().forEach((tree, tiles) ->
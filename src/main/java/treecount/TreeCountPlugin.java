@@ -3,12 +3,12 @@ package treecount;
 import com.google.inject.Provides;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import javax.inject.Inject;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -19,8 +19,6 @@ import net.runelite.api.GameObject;
 import net.runelite.api.GameState;
 import net.runelite.api.Player;
 import net.runelite.api.Point;
-import net.runelite.api.coords.Angle;
-import net.runelite.api.coords.Direction;
 import net.runelite.api.coords.WorldPoint;
 import net.runelite.api.events.AnimationChanged;
 import net.runelite.api.events.GameObjectDespawned;
@@ -29,8 +27,10 @@ import net.runelite.api.events.GameStateChanged;
 import net.runelite.api.events.GameTick;
 import net.runelite.api.events.PlayerDespawned;
 import net.runelite.api.events.PlayerSpawned;
+import net.runelite.client.callback.ClientThread;
 import net.runelite.client.config.ConfigManager;
 import net.runelite.client.eventbus.Subscribe;
+import net.runelite.client.events.ConfigChanged;
 import net.runelite.client.plugins.Plugin;
 import net.runelite.client.plugins.PluginDescriptor;
 import net.runelite.client.ui.overlay.OverlayManager;
@@ -55,14 +55,26 @@ public class TreeCountPlugin extends Plugin
 	@Inject
 	private TreeCountOverlay overlay;
 
+	@Inject
+	private TreeCountHistory history;
+
+	@Inject
+	private ClientThread clientThread;
+
+	private static final ActivityRegistry ACTIVITIES = buildActivityRegistry();
+
+	// While throttled, only players within this many tiles of the local player are tracked
+	private static final int VIEW_DISTANCE = 15;
+
+	private final ActivityCounter counter = new ActivityCounter(ACTIVITIES, this::onPlayerOrientationChanged);
+	// Kept as fields so the per tick sweep doesn't allocate a new predicate
+	private final Predicate<Player> inView = this::isInView;
+	private final Predicate<Player> anyPlayer = player -> true;
 	@Getter
-	private final Map<GameObject, Integer> treeMap = new HashMap<>();
-	private final Map<Player, GameObject> playerMap = new HashMap<>();
-	@Getter
-	private final Map<GameObject, List<WorldPoint>> treeTileMap = new HashMap<>();
-	private final Map<WorldPoint, GameObject> tileTreeMap = new HashMap<>();
-	// This map is used to track player orientation changes for only players that are chopping trees
-	private final Map<Player, Integer> playerOrientationMap = new ConcurrentHashMap<>();
+	private final AdaptiveThrottle throttle = new AdaptiveThrottle();
+
+	// Read once per tick so the in view checks don't each allocate the local player's location
+	private WorldPoint localLocation;
 
 	private int previousPlane;
 
@@ -84,11 +96,9 @@ public class TreeCountPlugin extends Plugin
 	protected void shutDown()
 	{
 		overlayManager.remove(overlay);
-		treeMap.clear();
-		treeTileMap.clear();
-		tileTreeMap.clear();
-		playerMap.clear();
-		playerOrientationMap.clear();
+		history.close();
+		counter.clear();
+		throttle.reset();
 		previousPlane = -1;
 		firstRun = true;
 	}
@@ -96,17 +106,20 @@ public class TreeCountPlugin extends Plugin
 	@Subscribe
 	public void onGameTick(GameTick gameTick)
 	{
-		if (isRegionInWoodcuttingGuild(client.getLocalPlayer().getWorldLocation().getRegionID()))
+		localLocation = client.getLocalPlayer().getWorldLocation();
+		if (isRegionInWoodcuttingGuild(localLocation.getRegionID()))
 		{
 			return;
 		}
 
+		final long start = System.nanoTime();
+
 		// Event runs third (or last) upon login
 		int currentPlane = client.getPlane();
 		if (previousPlane != currentPlane)
 		{
 			// Only clear values because sometimes the trees are still there when changing planes (Top of Seer's Bank)
-			treeMap.replaceAll((k, v) -> 0);
+			counter.resetCounts();
 			previousPlane = currentPlane;
 		}
 
@@ -116,40 +129,53 @@ public class TreeCountPlugin extends Plugin
 			client.getPlayers().forEach(player -> {
 				if (!player.equals(client.getLocalPlayer()))
 				{
-					playerMap.putIfAbsent(player, null);
-					playerOrientationMap.put(player, -1);
+					counter.registerPlayerOrientation(player);
 				}
 			});
-			for (Player player : playerMap.keySet())
-			{
-				if (isWoodcutting(player) && !treeMap.isEmpty())
-				{
-					addToTreeFocusedMaps(player);
-				}
-			}
+			counter.addActivePlayers();
 		}
 
 		// Let's create a PlayerOrientationChanged event for cases when the players shift's orientation while chopping
-		if (!playerOrientationMap.isEmpty())
+		// When throttled, only check a rotating sample of the players in view each tick
+		if (throttle.isDegraded())
 		{
-			for (Map.Entry<Player, Integer> playerOrientationEntry : playerOrientationMap.entrySet())
-			{
-				Player player = playerOrientationEntry.getKey();
-				int previousOrientation = playerOrientationEntry.getValue();
-				int currentOrientation = player.getOrientation();
-
-				if (currentOrientation != previousOrientation)
-				{
-					final PlayerOrientationChanged playerOrientationChanged = new PlayerOrientationChanged(player, previousOrientation, currentOrientation);
-					onPlayerOrientationChanged(playerOrientationChanged);
-				}
-			}
+			counter.updateOrientations(client.getTickCount(), AdaptiveThrottle.SAMPLE_STRIDE, inView);
+			// Pick up the players that started an activity out of view once they come into view
+			counter.addDeferredPlayers(inView);
+		}
+		else
+		{
+			counter.updateOrientations(client.getTickCount(), 1, anyPlayer);
 		}
 
 		if (firstRun)
 		{
 			firstRun = false;
 		}
+
+		throttle.add(System.nanoTime() - start);
+		final boolean wasDegraded = throttle.isDegraded();
+		throttle.endTick(config.adaptiveThrottling(), TimeUnit.MICROSECONDS.toNanos(config.tickBudget()));
+		if (wasDegraded && !throttle.isDegraded())
+		{
+			// Pick up the rest of the players that started an activity out of view while throttled
+			counter.addDeferredPlayers(anyPlayer);
+		}
+
+		if (config.recordHistory())
+		{
+			history.record(client.getTickCount(), counter.getCounts());
+		}
+	}
+
+	@Subscribe
+	public void onConfigChanged(final ConfigChanged event)
+	{
+		if ("treecount".equals(event.getGroup()) && "recordHistory".equals(event.getKey()) && !config.recordHistory())
+		{
+			// Write out the rows buffered so far rather than holding them until shutdown
+			clientThread.invoke(history::flush);
+		}
 	}
 
 	@Subscribe
@@ -163,15 +189,12 @@ public class TreeCountPlugin extends Plugin
 			return;
 		}
 
-		Tree tree = Tree.findTree(gameObject.getId());
+		Activity activity = ACTIVITIES.findObjectActivity(gameObject.getId());
 
-		if (tree != null)
+		if (activity != null)
 		{
-			log.debug("Tree {} spawned at {}", tree, gameObject.getLocalLocation());
-			treeMap.put(gameObject, 0);
-			List<WorldPoint> points = getPoints(gameObject);
-			treeTileMap.put(gameObject, points);
-			points.forEach(point -> tileTreeMap.put(point, gameObject));
+			log.debug("{} object {} spawned at {}", activity, gameObject.getId(), gameObject.getLocalLocation());
+			counter.addObject(gameObject, activity, getPoints(gameObject));
 		}
 	}
 
@@ -205,15 +228,9 @@ public class TreeCountPlugin extends Plugin
 		{
 			return;
 		}
-		Tree tree = Tree.findTree(gameObject.getId());
-		if (tree != null && !tree.equals(Tree.REGULAR_TREE))
+		if (ACTIVITIES.findObjectActivity(gameObject.getId()) != null && Tree.findTree(gameObject.getId()) != Tree.REGULAR_TREE)
 		{
-			treeMap.remove(gameObject);
-			List<WorldPoint> points = treeTileMap.remove(gameObject);
-			if (points != null)
-			{
-				points.forEach(tileTreeMap::remove);
-			}
+			counter.removeObject(gameObject);
 		}
 	}
 
@@ -222,11 +239,8 @@ public class TreeCountPlugin extends Plugin
 	{
 		if (event.getGameState() == GameState.LOADING)
 		{
-			treeMap.clear();
-			treeTileMap.clear();
-			tileTreeMap.clear();
-			playerMap.clear();
-			playerOrientationMap.clear();
+			counter.clear();
+			throttle.reset();
 			firstRun = true;
 		}
 	}
@@ -250,14 +264,11 @@ public class TreeCountPlugin extends Plugin
 
 		if (firstRun)
 		{
-			playerMap.put(player, null);
+			counter.registerPlayer(player);
 			return;
 		}
 
-		if (isWoodcutting(player))
-		{
-			addToTreeFocusedMaps(player);
-		}
+		counter.add(player);
 	}
 
 	@Subscribe
@@ -277,12 +288,11 @@ public class TreeCountPlugin extends Plugin
 
 		if (firstRun)
 		{
-			playerMap.remove(player);
-			playerOrientationMap.remove(player);
+			counter.unregisterPlayer(player);
 			return;
 		}
 
-		removeFromTreeMaps(player);
+		counter.remove(player);
 	}
 
 	@Subscribe
@@ -309,14 +319,24 @@ public class TreeCountPlugin extends Plugin
 				return;
 			}
 
-			if (isWoodcutting(player) && !treeMap.isEmpty())
+			final long start = System.nanoTime();
+			if (counter.findActivity(player) != null && !counter.getCounts().isEmpty())
 			{
-				addToTreeFocusedMaps(player);
+				// When throttled, trees out of view are left alone until the throttle recovers
+				if (!throttle.isDegraded() || isInView(player))
+				{
+					counter.add(player);
+				}
+				else
+				{
+					counter.defer(player);
+				}
 			}
 			else if (player.getAnimation() == AnimationID.IDLE)
 			{
-				removeFromTreeMaps(player);
+				counter.remove(player);
 			}
+			throttle.add(System.nanoTime() - start);
 		}
 	}
 
@@ -333,7 +353,10 @@ public class TreeCountPlugin extends Plugin
 
 		Player player = event.getPlayer();
 
-		log.debug("Player {} orientation changed from {} to {}", player.getName(), event.getPreviousOrientation(), event.getCurrentOrientation());
+		if (log.isDebugEnabled())
+		{
+			log.debug("Player {} orientation changed from {} to {}", player.getName(), event.getPreviousOrientation(), event.getCurrentOrientation());
+		}
 
 		if (player.equals(client.getLocalPlayer()))
 		{
@@ -345,83 +368,55 @@ public class TreeCountPlugin extends Plugin
 			return;
 		}
 
-		playerOrientationMap.put(player, event.getCurrentOrientation());
-		removeFromTreeMaps(player); // Remove the previous tracked case
-		if (isWoodcutting(player))
-		{
-			addToTreeFocusedMaps(player);
-		}
+		counter.orientationChanged(player, event.getCurrentOrientation());
 	}
 
-	private boolean isWoodcutting(Actor actor)
+	/**
+	 * @return number of players performing an activity on each tracked object
+	 */
+	Map<GameObject, Integer> getTreeMap()
 	{
-		switch (actor.getAnimation())
-		{
-			case AnimationID.WOODCUTTING_BRONZE:
-			case AnimationID.WOODCUTTING_IRON:
-			case AnimationID.WOODCUTTING_STEEL:
-			case AnimationID.WOODCUTTING_BLACK:
-			case AnimationID.WOODCUTTING_MITHRIL:
-			case AnimationID.WOODCUTTING_ADAMANT:
-			case AnimationID.WOODCUTTING_RUNE:
-			case AnimationID.WOODCUTTING_GILDED:
-			case AnimationID.WOODCUTTING_DRAGON:
-			case AnimationID.WOODCUTTING_DRAGON_OR:
-			case AnimationID.WOODCUTTING_INFERNAL:
-			case AnimationID.WOODCUTTING_3A_AXE:
-			case AnimationID.WOODCUTTING_CRYSTAL:
-			case AnimationID.WOODCUTTING_TRAILBLAZER:
-				return true;
-			default:
-				return false;
-		}
+		return counter.getCounts();
 	}
 
-	void addToTreeFocusedMaps(Player player)
+	Map<GameObject, List<WorldPoint>> getTreeTileMap()
 	{
-		GameObject closestTree = findClosestFacingTree(player);
-		if (closestTree == null)
-		{
-			return;
-		}
-		playerMap.put(player, closestTree);
-		treeMap.merge(closestTree, 1, Integer::sum);
+		return counter.getObjectTiles();
 	}
 
-	void removeFromTreeMaps(Player player)
+	GameObject findClosestFacingTree(Actor actor)
 	{
-		GameObject tree = playerMap.get(player);
-		playerMap.remove(player);
-		treeMap.computeIfPresent(tree, (unused, value) -> Math.max(0, value - 1));
+		return counter.findClosestFacingObject(actor, Activity.WOODCUTTING);
 	}
 
-	GameObject findClosestFacingTree(Actor actor)
+	private boolean isInView(Player player)
 	{
-		WorldPoint actorLocation = actor.getWorldLocation();
-		Direction direction = new Angle(actor.getOrientation()).getNearestDirection();
-		WorldPoint facingPoint = neighborPoint(actorLocation, direction);
-		if (actor != client.getLocalPlayer())
-		{
-			log.debug("Actor: {}, Direction: {}", actor.getName(), direction);
-		}
-		return tileTreeMap.get(facingPoint);
+		return localLocation.distanceTo2D(player.getWorldLocation()) <= VIEW_DISTANCE;
 	}
 
-	private WorldPoint neighborPoint(WorldPoint point, Direction direction)
+	private static ActivityRegistry buildActivityRegistry()
 	{
-		switch (direction)
+		ActivityRegistry.Builder builder = ActivityRegistry.builder()
+			.animations(Activity.WOODCUTTING,
+				AnimationID.WOODCUTTING_BRONZE,
+				AnimationID.WOODCUTTING_IRON,
+				AnimationID.WOODCUTTING_STEEL,
+				AnimationID.WOODCUTTING_BLACK,
+				AnimationID.WOODCUTTING_MITHRIL,
+				AnimationID.WOODCUTTING_ADAMANT,
+				AnimationID.WOODCUTTING_RUNE,
+				AnimationID.WOODCUTTING_GILDED,
+				AnimationID.WOODCUTTING_DRAGON,
+				AnimationID.WOODCUTTING_DRAGON_OR,
+				AnimationID.WOODCUTTING_INFERNAL,
+				AnimationID.WOODCUTTING_3A_AXE,
+				AnimationID.WOODCUTTING_CRYSTAL,
+				AnimationID.WOODCUTTING_TRAILBLAZER);
+		for (Tree tree : Tree.values())
 		{
-			case NORTH:
-				return point.dy(1);
-			case SOUTH:
-				return point.dy(-1);
-			case EAST:
-				return point.dx(1);
-			case WEST:
-				return point.dx(-1);
-			default:
-				throw new IllegalStateException();
+			builder.objects(Activity.WOODCUTTING, tree.getTreeIds());
 		}
+		return builder.build();
 	}
 
 	private WorldPoint getSWWorldPoint(GameObject gameObject)
@@ -0,0 +1,115 @@
+package treecount;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import net.runelite.api.AnimationID;
+import net.runelite.api.GameObject;
+import net.runelite.api.Player;
+import net.runelite.api.coords.WorldPoint;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+public class ActivityCounterTest
+{
+	// A second activity sharing the tile index with woodcutting, only registered here
+	private static final Activity MINING = new Activity("MINING");
+
+	private static final int WOODCUTTING_ANIMATION = AnimationID.WOODCUTTING_RUNE;
+	private static final int MINING_ANIMATION = 624; // Rune pickaxe
+	private static final int TREE_ID = 10832;
+	private static final int ROCK_ID = 11364;
+	private static final int WEST = 512;
+	private static final int EAST = 1536;
+
+	private final ActivityRegistry registry = ActivityRegistry.builder()
+		.objects(Activity.WOODCUTTING, TREE_ID)
+		.objects(MINING, ROCK_ID)
+		.animations(Activity.WOODCUTTING, WOODCUTTING_ANIMATION)
+		.animations(MINING, MINING_ANIMATION)
+		.build();
+
+	@Test
+	public void testRegistryLookups()
+	{
+		assertSame(Activity.WOODCUTTING, registry.findObjectActivity(TREE_ID));
+		assertSame(MINING, registry.findObjectActivity(ROCK_ID));
+		assertNull(registry.findObjectActivity(1));
+
+		assertSame(Activity.WOODCUTTING, registry.findAnimationActivity(WOODCUTTING_ANIMATION));
+		assertSame(MINING, registry.findAnimationActivity(MINING_ANIMATION));
+		assertNull(registry.findAnimationActivity(AnimationID.IDLE));
+		assertNull(registry.findAnimationActivity(0));
+		assertNull(registry.findAnimationActivity(Integer.MIN_VALUE));
+		assertNull(registry.findAnimationActivity(Integer.MAX_VALUE));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicateAnimation()
+	{
+		ActivityRegistry.builder()
+			.animations(Activity.WOODCUTTING, WOODCUTTING_ANIMATION)
+			.animations(MINING, WOODCUTTING_ANIMATION);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeAnimation()
+	{
+		ActivityRegistry.builder().animations(MINING, -5);
+	}
+
+	@Test
+	public void testActivityMustMatchObject()
+	{
+		ActivityCounter counter = new ActivityCounter(registry, event ->
+		{
+		});
+		// A tree and a rock either side of the same tile, sharing one tile index
+		GameObject tree = object(TREE_ID);
+		GameObject rock = object(ROCK_ID);
+		counter.addObject(tree, Activity.WOODCUTTING, Collections.singletonList(new WorldPoint(10, 10, 0)));
+		counter.addObject(rock, MINING, Collections.singletonList(new WorldPoint(12, 10, 0)));
+
+		counter.add(player(11, 10, WEST, WOODCUTTING_ANIMATION));
+		counter.add(player(11, 10, EAST, MINING_ANIMATION));
+		assertEquals(1, (int) counter.getCounts().get(tree));
+		assertEquals(1, (int) counter.getCounts().get(rock));
+
+		// Facing the other activity's object counts for nothing
+		Player woodcutterAtRock = player(11, 10, EAST, WOODCUTTING_ANIMATION);
+		Player minerAtTree = player(11, 10, WEST, MINING_ANIMATION);
+		counter.add(woodcutterAtRock);
+		counter.add(minerAtTree);
+		assertNull(counter.findClosestFacingObject(woodcutterAtRock, Activity.WOODCUTTING));
+		assertNull(counter.findClosestFacingObject(minerAtTree, MINING));
+		assertEquals(1, (int) counter.getCounts().get(tree));
+		assertEquals(1, (int) counter.getCounts().get(rock));
+
+		// Without an activity filter, any object is found
+		assertSame(rock, counter.findClosestFacingObject(woodcutterAtRock, null));
+
+		counter.removeObject(rock);
+		assertNull(counter.findClosestFacingObject(woodcutterAtRock, null));
+		assertSame(tree, counter.findClosestFacingObject(minerAtTree, null));
+	}
+
+	private static GameObject object(int id)
+	{
+		Map<String, Supplier<?>> answers = new HashMap<>();
+		answers.put("getId", () -> id);
+		return TreeCountScenario.stub(GameObject.class, answers);
+	}
+
+	private static Player player(int x, int y, int orientation, int animation)
+	{
+		WorldPoint location = new WorldPoint(x, y, 0);
+		Map<String, Supplier<?>> answers = new HashMap<>();
+		answers.put("getWorldLocation", () -> location);
+		answers.put("getOrientation", () -> orientation);
+		answers.put("getAnimation", () -> animation);
+		return TreeCountScenario.stub(Player.class, answers);
+	}
+}
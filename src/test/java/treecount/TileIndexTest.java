@@ -0,0 +1,53 @@
+package treecount;
+
+import java.util.HashMap;
+import java.util.Map;
+import net.runelite.api.GameObject;
+import net.runelite.api.coords.WorldPoint;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+public class TileIndexTest
+{
+	@Test
+	public void testPutRemoveAcrossResizes()
+	{
+		TileIndex index = new TileIndex();
+		Map<WorldPoint, GameObject> expected = new HashMap<>();
+		for (int x = 3200; x < 3240; x++)
+		{
+			for (int y = 3200; y < 3240; y++)
+			{
+				WorldPoint point = new WorldPoint(x, y, (x + y) & 3);
+				GameObject gameObject = TreeCountScenario.stub(GameObject.class, new HashMap<>());
+				index.put(point, gameObject);
+				expected.put(point, gameObject);
+			}
+		}
+
+		// Remove every other tile so the backward shift runs through long probe chains
+		for (int x = 3200; x < 3240; x++)
+		{
+			for (int y = 3200; y < 3240; y += 2)
+			{
+				WorldPoint point = new WorldPoint(x, y, (x + y) & 3);
+				index.remove(point);
+				expected.remove(point);
+			}
+		}
+
+		for (int x = 3200; x < 3240; x++)
+		{
+			for (int y = 3200; y < 3240; y++)
+			{
+				int plane = (x + y) & 3;
+				assertSame(expected.get(new WorldPoint(x, y, plane)), index.get(x, y, plane));
+			}
+		}
+		assertNull(index.get(3200, 3201, 0));
+
+		index.clear();
+		assertNull(index.get(3201, 3201, 2));
+	}
+}
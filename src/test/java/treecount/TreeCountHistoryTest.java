@@ -0,0 +1,146 @@
+package treecount;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import net.runelite.api.GameObject;
+import net.runelite.api.coords.WorldPoint;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TreeCountHistoryTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final GameObject maple = tree(10832, 2722, 3500);
+	private final GameObject oak = tree(10820, 3200, 3230);
+
+	@Test
+	public void testRoundTrip() throws IOException
+	{
+		File directory = folder.getRoot();
+		TreeCountHistory history = new TreeCountHistory(Runnable::run, directory);
+		history.record(10, counts(maple, 3, oak, 1));
+		history.record(11, counts(maple, 5, oak, 0));
+		history.close();
+
+		List<TreeCountHistoryReader.Sample> samples = read(directory);
+		assertEquals(3, samples.size());
+		assertSample(samples.get(0), 10, 10806, 10832, Tree.MAPLE_TREE, 3);
+		assertSample(samples.get(1), 10, 12850, 10820, Tree.OAK_TREE, 1);
+		assertSample(samples.get(2), 11, 10806, 10832, Tree.MAPLE_TREE, 5);
+		assertEquals(600, samples.get(2).getTimestamp() - samples.get(0).getTimestamp());
+	}
+
+	@Test
+	public void testIncompleteBlockIsTruncatedOnReopen() throws IOException
+	{
+		File directory = folder.getRoot();
+		TreeCountHistory history = new TreeCountHistory(Runnable::run, directory);
+		history.record(10, counts(maple, 3, oak, 1));
+		history.close();
+
+		// The client was killed part way through writing a block
+		Path file = historyFile(directory);
+		ByteBuffer partial = ByteBuffer.allocate(Integer.BYTES + 6).putInt(100);
+		Files.write(file, partial.array(), StandardOpenOption.APPEND);
+
+		history = new TreeCountHistory(Runnable::run, directory);
+		history.record(20, counts(maple, 2, oak, 0));
+		history.close();
+
+		List<TreeCountHistoryReader.Sample> samples = read(directory);
+		assertEquals(3, samples.size());
+		assertSample(samples.get(2), 20, 10806, 10832, Tree.MAPLE_TREE, 2);
+	}
+
+	@Test
+	public void testOtherVersionIsNotOverwritten() throws IOException
+	{
+		File directory = folder.getRoot();
+		// A file from an older format version, e.g. "TCH1", for the same day
+		Path old = new File(directory, TreeCountHistory.FILE_PREFIX + LocalDate.now() + TreeCountHistory.FILE_SUFFIX).toPath();
+		byte[] oldBytes = ByteBuffer.allocate(Integer.BYTES * 3).putInt(0x54434831).putInt(8).putInt(42).array();
+		Files.write(old, oldBytes);
+
+		TreeCountHistory history = new TreeCountHistory(Runnable::run, directory);
+		history.record(10, counts(maple, 3, oak, 1));
+		history.close();
+
+		assertArrayEquals(oldBytes, Files.readAllBytes(old));
+		assertTrue(Files.exists(new File(directory, TreeCountHistory.FILE_PREFIX + LocalDate.now() + "-1" + TreeCountHistory.FILE_SUFFIX).toPath()));
+
+		List<TreeCountHistoryReader.Sample> samples = read(directory);
+		assertEquals(2, samples.size());
+		assertSample(samples.get(0), 10, 10806, 10832, Tree.MAPLE_TREE, 3);
+	}
+
+	@Test(expected = IOException.class)
+	public void testNegativeBlockLength() throws IOException
+	{
+		Path file = folder.newFile(TreeCountHistory.FILE_PREFIX + "corrupt" + TreeCountHistory.FILE_SUFFIX).toPath();
+		ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * 2).putInt(TreeCountHistory.MAGIC).putInt(-5);
+		Files.write(file, buffer.array());
+
+		TreeCountHistoryReader.read(file, sample ->
+		{
+		});
+	}
+
+	private static Map<GameObject, Integer> counts(GameObject first, int firstCount, GameObject second, int secondCount)
+	{
+		Map<GameObject, Integer> counts = new LinkedHashMap<>();
+		counts.put(first, firstCount);
+		counts.put(second, secondCount);
+		return counts;
+	}
+
+	private static List<TreeCountHistoryReader.Sample> read(File directory) throws IOException
+	{
+		List<TreeCountHistoryReader.Sample> samples = new ArrayList<>();
+		TreeCountHistoryReader.readAll(directory.toPath(), samples::add);
+		return samples;
+	}
+
+	private static Path historyFile(File directory) throws IOException
+	{
+		try (Stream<Path> files = Files.list(directory.toPath()))
+		{
+			return files.findFirst().orElseThrow(() -> new IOException("No history file written"));
+		}
+	}
+
+	private static void assertSample(TreeCountHistoryReader.Sample sample, int tick, int regionId, int objectId, Tree tree, int choppers)
+	{
+		assertEquals(tick, sample.getTick());
+		assertEquals(regionId, sample.getRegionId());
+		assertEquals(objectId, sample.getObjectId());
+		assertEquals(tree, sample.getTree());
+		assertEquals(choppers, sample.getChoppers());
+	}
+
+	private static GameObject tree(int id, int x, int y)
+	{
+		WorldPoint location = new WorldPoint(x, y, 0);
+		Map<String, Supplier<?>> answers = new HashMap<>();
+		answers.put("getId", () -> id);
+		answers.put("getWorldLocation", () -> location);
+		return TreeCountScenario.stub(GameObject.class, answers);
+	}
+}
@@ -0,0 +1,366 @@
+package treecount;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import net.runelite.api.AnimationID;
+import net.runelite.api.Client;
+import net.runelite.api.GameObject;
+import net.runelite.api.GameState;
+import net.runelite.api.Player;
+import net.runelite.api.Point;
+import net.runelite.api.coords.WorldPoint;
+import net.runelite.api.events.AnimationChanged;
+import net.runelite.api.events.GameObjectSpawned;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.GameTick;
+import net.runelite.api.events.PlayerSpawned;
+
+/**
+ * Drives a {@link TreeCountPlugin} against in-memory stand-ins for the client, players and game objects, so scenarios
+ * can be replayed without the RuneLite client.
+ * <p>
+ * The stand-ins are dynamic proxies that answer the handful of methods the plugin calls and return zero/null for
+ * everything else. The config returns its declared defaults unless overridden with {@link #setConfig}.
+ */
+final class TreeCountScenario
+{
+	static final int WOODCUTTING = AnimationID.WOODCUTTING_RUNE;
+
+	// South, south-west, west, north-west, north, north-east, east, south-east, matching the plugin's octants
+	private static final int[] OCTANT_DX = {0, -1, -1, -1, 0, 1, 1, 1};
+	private static final int[] OCTANT_DY = {-1, -1, 0, 1, 1, 1, 0, -1};
+
+	private static final Map<Class<?>, Object> PRIMITIVE_DEFAULTS = new HashMap<>();
+
+	static
+	{
+		PRIMITIVE_DEFAULTS.put(boolean.class, false);
+		PRIMITIVE_DEFAULTS.put(byte.class, (byte) 0);
+		PRIMITIVE_DEFAULTS.put(short.class, (short) 0);
+		PRIMITIVE_DEFAULTS.put(char.class, (char) 0);
+		PRIMITIVE_DEFAULTS.put(int.class, 0);
+		PRIMITIVE_DEFAULTS.put(long.class, 0L);
+		PRIMITIVE_DEFAULTS.put(float.class, 0f);
+		PRIMITIVE_DEFAULTS.put(double.class, 0d);
+	}
+
+	private final TreeCountPlugin plugin = new TreeCountPlugin();
+	private final GameTick gameTick = newInstance(GameTick.class);
+	private final Map<String, Object> configValues = new HashMap<>();
+	private final List<Player> players = new ArrayList<>();
+	private final List<StubPlayer> stubPlayers = new ArrayList<>();
+	private final List<GameObject> trees = new ArrayList<>();
+	private final Client client;
+	private final StubPlayer localPlayer;
+	private final int baseX;
+	private final int baseY;
+	private int plane;
+	private int tickCount;
+
+	/**
+	 * @param baseX scene base, the world x of scene x 0
+	 * @param baseY scene base, the world y of scene y 0
+	 * @param localX world x of the local player
+	 * @param localY world y of the local player
+	 */
+	TreeCountScenario(int baseX, int baseY, int localX, int localY)
+	{
+		this.baseX = baseX;
+		this.baseY = baseY;
+		this.localPlayer = new StubPlayer("local", localX, localY, 0, AnimationID.IDLE);
+
+		Map<String, Supplier<?>> clientAnswers = new HashMap<>();
+		clientAnswers.put("getLocalPlayer", () -> localPlayer.player);
+		clientAnswers.put("getPlayers", () -> players);
+		clientAnswers.put("getPlane", () -> plane);
+		clientAnswers.put("getTickCount", () -> tickCount);
+		clientAnswers.put("getBaseX", () -> this.baseX);
+		clientAnswers.put("getBaseY", () -> this.baseY);
+		clientAnswers.put("getGameState", () -> GameState.LOGGED_IN);
+		// Newer clients resolve scene coordinates through the top level world view rather than the client itself
+		try
+		{
+			Class<?> worldView = Client.class.getMethod("getTopLevelWorldView").getReturnType();
+			Object topLevelWorldView = stub(worldView, clientAnswers);
+			clientAnswers.put("getTopLevelWorldView", () -> topLevelWorldView);
+		}
+		catch (NoSuchMethodException ignored)
+		{
+		}
+		this.client = stub(Client.class, clientAnswers);
+
+		Map<String, Supplier<?>> configAnswers = new HashMap<>();
+		for (Method method : TreeCountConfig.class.getDeclaredMethods())
+		{
+			configAnswers.put(method.getName(), () -> configValues.get(method.getName()));
+		}
+
+		inject("client", client);
+		inject("config", stub(TreeCountConfig.class, configAnswers, true));
+	}
+
+	/**
+	 * Seers' Village maples with the given number of choppers spread around them, eight to a tree
+	 */
+	static TreeCountScenario seersMaples(int choppers)
+	{
+		TreeCountScenario scenario = new TreeCountScenario(2688, 3456, 2720, 3490);
+		int trees = (choppers + 7) / 8;
+		for (int i = 0; i < trees; i++)
+		{
+			scenario.tree(10832, 2722 + i * 4, 3500, 1);
+		}
+		for (int i = 0; i < choppers; i++)
+		{
+			scenario.chopperAround(scenario.trees.get(i / 8), i % 8);
+		}
+		return scenario;
+	}
+
+	/**
+	 * Yews inside the Woodcutting Guild, where the plugin is disabled
+	 */
+	static TreeCountScenario woodcuttingGuild(int choppers)
+	{
+		TreeCountScenario scenario = new TreeCountScenario(1536, 3424, 1590, 3480);
+		scenario.tree(10822, 1592, 3488, 1);
+		for (int i = 0; i < choppers; i++)
+		{
+			scenario.chopperAround(scenario.trees.get(0), i % 8);
+		}
+		return scenario;
+	}
+
+	/**
+	 * Adds a tree occupying a size by size square with its south-west corner at the given world point
+	 */
+	GameObject tree(int id, int x, int y, int size)
+	{
+		WorldPoint location = new WorldPoint(x, y, plane);
+		Map<String, Supplier<?>> answers = new HashMap<>();
+		answers.put("getId", () -> id);
+		answers.put("getPlane", () -> location.getPlane());
+		answers.put("getWorldLocation", () -> location);
+		answers.put("getSceneMinLocation", () -> new Point(x - baseX, y - baseY));
+		answers.put("getSceneMaxLocation", () -> new Point(x - baseX + size - 1, y - baseY + size - 1));
+		GameObject tree = stub(GameObject.class, answers);
+		trees.add(tree);
+		return tree;
+	}
+
+	/**
+	 * Adds a chopper on the given neighbor tile of a tree's south-west tile, facing the tree
+	 *
+	 * @param octant 0 (south) to 7 (south-east), the side of the tree to stand on
+	 */
+	StubPlayer chopperAround(GameObject tree, int octant)
+	{
+		WorldPoint location = tree.getWorldLocation();
+		int facing = (octant + 4) & 7;
+		return player(location.getX() + OCTANT_DX[octant], location.getY() + OCTANT_DY[octant], facing * 256, WOODCUTTING);
+	}
+
+	StubPlayer player(int x, int y, int orientation, int animation)
+	{
+		StubPlayer player = new StubPlayer("player" + players.size(), x, y, orientation, animation);
+		players.add(player.player);
+		stubPlayers.add(player);
+		return player;
+	}
+
+	List<GameObject> getTrees()
+	{
+		return trees;
+	}
+
+	List<StubPlayer> getPlayers()
+	{
+		return stubPlayers;
+	}
+
+	StubPlayer getLocalPlayer()
+	{
+		return localPlayer;
+	}
+
+	TreeCountPlugin getPlugin()
+	{
+		return plugin;
+	}
+
+	void setConfig(String key, Object value)
+	{
+		configValues.put(key, value);
+	}
+
+	/**
+	 * Replays a login: the scene loads, the trees and players spawn, then the first tick runs
+	 */
+	TreeCountScenario login()
+	{
+		GameStateChanged loading = new GameStateChanged();
+		loading.setGameState(GameState.LOADING);
+		plugin.onGameStateChanged(loading);
+
+		for (GameObject tree : trees)
+		{
+			GameObjectSpawned spawned = new GameObjectSpawned();
+			spawned.setGameObject(tree);
+			plugin.onGameObjectSpawned(spawned);
+		}
+		for (Player player : players)
+		{
+			plugin.onPlayerSpawned(new PlayerSpawned(player));
+		}
+		tick();
+		return this;
+	}
+
+	void tick()
+	{
+		tickCount++;
+		plugin.onGameTick(gameTick);
+	}
+
+	void setPlane(int plane)
+	{
+		this.plane = plane;
+	}
+
+	int count(GameObject tree)
+	{
+		return plugin.getTreeMap().getOrDefault(tree, 0);
+	}
+
+	int totalCount()
+	{
+		return plugin.getTreeMap().values().stream().mapToInt(Integer::intValue).sum();
+	}
+
+	final class StubPlayer
+	{
+		final Player player;
+		private final String name;
+		private WorldPoint location;
+		// Boxed once when set rather than on every call, so the stub doesn't pollute the allocation measurements
+		private Integer orientation;
+		private Integer animation;
+
+		private StubPlayer(String name, int x, int y, int orientation, int animation)
+		{
+			this.name = name;
+			this.location = new WorldPoint(x, y, plane);
+			this.orientation = orientation;
+			this.animation = animation;
+
+			Map<String, Supplier<?>> answers = new HashMap<>();
+			answers.put("getName", () -> this.name);
+			answers.put("getWorldLocation", () -> this.location);
+			answers.put("getOrientation", () -> this.orientation);
+			answers.put("getAnimation", () -> this.animation);
+			answers.put("getCombatLevel", () -> 100);
+			this.player = stub(Player.class, answers);
+		}
+
+		void setLocation(int x, int y)
+		{
+			this.location = new WorldPoint(x, y, plane);
+		}
+
+		void setOrientation(int orientation)
+		{
+			this.orientation = orientation;
+		}
+
+		void setAnimation(int animation)
+		{
+			this.animation = animation;
+			AnimationChanged event = new AnimationChanged();
+			event.setActor(player);
+			plugin.onAnimationChanged(event);
+		}
+	}
+
+	static <T> T stub(Class<T> type, Map<String, Supplier<?>> answers)
+	{
+		return stub(type, answers, false);
+	}
+
+	/**
+	 * @param callDefaults whether methods without an answer call the interface's default method, like a real config.
+	 *                     Config defaults are constants, so each is only called once and then remembered.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> T stub(Class<T> type, Map<String, Supplier<?>> answers, boolean callDefaults)
+	{
+		Map<Method, Object> defaults = new HashMap<>();
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) ->
+		{
+			switch (method.getName())
+			{
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "toString":
+					return type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+			}
+
+			Supplier<?> answer = answers.get(method.getName());
+			Object value = answer == null ? null : answer.get();
+			if (value == null && callDefaults && method.isDefault())
+			{
+				value = defaults.get(method);
+				if (value == null)
+				{
+					value = MethodHandles.privateLookupIn(type, MethodHandles.lookup())
+						.unreflectSpecial(method, type)
+						.bindTo(proxy)
+						.invokeWithArguments(args == null ? new Object[0] : args);
+					defaults.put(method, value);
+				}
+			}
+			if (value == null && method.getReturnType().isPrimitive())
+			{
+				return PRIMITIVE_DEFAULTS.get(method.getReturnType());
+			}
+			return value;
+		});
+	}
+
+	private void inject(String fieldName, Object value)
+	{
+		try
+		{
+			Field field = TreeCountPlugin.class.getDeclaredField(fieldName);
+			field.setAccessible(true);
+			field.set(plugin, value);
+		}
+		catch (ReflectiveOperationException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static <T> T newInstance(Class<T> type)
+	{
+		try
+		{
+			Constructor<T> constructor = type.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			return constructor.newInstance();
+		}
+		catch (ReflectiveOperationException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,243 @@
+package treecount;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import net.runelite.api.AnimationID;
+import net.runelite.api.GameObject;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import org.junit.Test;
+
+public class TreeCountScenarioTest
+{
+	// About 100 bytes per chopper for the orientation event, the orientation map entry and boxing, plus some slack. A
+	// WorldPoint per neighbor probe would add about 11KB for 40 choppers, and a per tick collection or scene scan more
+	private static final long MAX_BYTES_PER_TICK = 8 * 1024;
+
+	@Test
+	public void testSeersMaples()
+	{
+		TreeCountScenario scenario = TreeCountScenario.seersMaples(40).login();
+
+		assertEquals(5, scenario.getTrees().size());
+		for (GameObject tree : scenario.getTrees())
+		{
+			assertEquals(8, scenario.count(tree));
+		}
+
+		scenario.tick();
+		assertEquals(40, scenario.totalCount());
+	}
+
+	@Test
+	public void testStopChopping()
+	{
+		TreeCountScenario scenario = TreeCountScenario.seersMaples(1).login();
+		GameObject tree = scenario.getTrees().get(0);
+		TreeCountScenario.StubPlayer chopper = scenario.getPlayers().get(0);
+		assertEquals(1, scenario.count(tree));
+
+		chopper.setAnimation(AnimationID.IDLE);
+		assertEquals(0, scenario.count(tree));
+
+		chopper.setAnimation(TreeCountScenario.WOODCUTTING);
+		assertEquals(1, scenario.count(tree));
+	}
+
+	@Test
+	public void testWoodcuttingGuild()
+	{
+		TreeCountScenario scenario = TreeCountScenario.woodcuttingGuild(8).login();
+		scenario.tick();
+
+		assertTrue(scenario.getPlugin().getTreeMap().isEmpty());
+	}
+
+	@Test
+	public void testPlaneChange()
+	{
+		TreeCountScenario scenario = TreeCountScenario.seersMaples(16).login();
+		assertEquals(16, scenario.totalCount());
+
+		scenario.setPlane(1);
+		scenario.tick();
+		assertEquals(0, scenario.totalCount());
+		assertEquals(2, scenario.getPlugin().getTreeMap().size());
+	}
+
+	@Test
+	public void testLargeTreeCorner()
+	{
+		TreeCountScenario scenario = new TreeCountScenario(2688, 3456, 2720, 3490);
+		GameObject yew = scenario.tree(10822, 2730, 3500, 2);
+		// South-west corner, facing north-east
+		scenario.player(2729, 3499, 5 * 256, TreeCountScenario.WOODCUTTING);
+		// North-east corner, facing west-south-west so only the fallback to the south-west finds the tree
+		scenario.player(2732, 3502, 256 + 150, TreeCountScenario.WOODCUTTING);
+		// West side, facing east but twisted towards the north-east
+		scenario.player(2729, 3501, 6 * 256 - 120, TreeCountScenario.WOODCUTTING);
+		scenario.login();
+
+		assertEquals(3, scenario.count(yew));
+	}
+
+	@Test
+	public void testOrientationJitter()
+	{
+		TreeCountScenario scenario = new TreeCountScenario(2688, 3456, 2720, 3490);
+		GameObject west = scenario.tree(10832, 2722, 3500, 1);
+		GameObject east = scenario.tree(10832, 2724, 3500, 1);
+		// North of the gap between the trees, facing south-west at the western tree
+		TreeCountScenario.StubPlayer chopper = scenario.player(2723, 3501, 256, TreeCountScenario.WOODCUTTING);
+		// Every orientation change has to be checked on the tick it happens, which throttling may sample away
+		scenario.setConfig("adaptiveThrottling", false);
+		scenario.login();
+		assertEquals(1, scenario.count(west));
+
+		// Just east of south (2040) leans towards the eastern tree, but is within the hysteresis of the western one
+		for (int i = 0; i < 20; i++)
+		{
+			chopper.setOrientation(i % 2 == 0 ? 2040 : 200);
+			scenario.tick();
+			assertEquals(1, scenario.count(west));
+			assertEquals(0, scenario.count(east));
+		}
+
+		// Turning all the way to the south-east moves them
+		chopper.setOrientation(7 * 256);
+		scenario.tick();
+		assertEquals(0, scenario.count(west));
+		assertEquals(1, scenario.count(east));
+	}
+
+	@Test
+	public void testTurnToAdjacentTree()
+	{
+		TreeCountScenario scenario = new TreeCountScenario(2688, 3456, 2720, 3490);
+		GameObject north = scenario.tree(10832, 2723, 3501, 1);
+		GameObject northEast = scenario.tree(10832, 2724, 3501, 1);
+		// Facing north-east at the north-eastern tree, with another tree directly north
+		TreeCountScenario.StubPlayer chopper = scenario.player(2723, 3500, 5 * 256, TreeCountScenario.WOODCUTTING);
+		scenario.setConfig("adaptiveThrottling", false);
+		scenario.login();
+		assertEquals(1, scenario.count(northEast));
+
+		// Just past the boundary between the two octants is within the hysteresis
+		chopper.setOrientation(5 * 256 - 180);
+		scenario.tick();
+		assertEquals(1, scenario.count(northEast));
+		assertEquals(0, scenario.count(north));
+
+		// Facing the northern tree head on moves them
+		chopper.setOrientation(4 * 256);
+		scenario.tick();
+		assertEquals(0, scenario.count(northEast));
+		assertEquals(1, scenario.count(north));
+	}
+
+	@Test
+	public void testAdaptiveThrottling()
+	{
+		TreeCountScenario scenario = TreeCountScenario.seersMaples(8);
+		GameObject farTree = scenario.tree(10832, 2750, 3530, 1);
+		TreeCountScenario.StubPlayer farPlayer = scenario.chopperAround(farTree, 0);
+		scenario.setConfig("adaptiveThrottling", true);
+		scenario.setConfig("tickBudget", 0);
+		scenario.login();
+		assertEquals(9, scenario.totalCount());
+
+		for (int i = 0; i < 3; i++)
+		{
+			scenario.tick();
+		}
+		assertTrue(scenario.getPlugin().getThrottle().isDegraded());
+
+		// Trees out of view are no longer picked up, but nearby ones still are
+		farPlayer.setAnimation(AnimationID.IDLE);
+		farPlayer.setAnimation(TreeCountScenario.WOODCUTTING);
+		assertEquals(0, scenario.count(farTree));
+		TreeCountScenario.StubPlayer nearPlayer = scenario.getPlayers().get(0);
+		nearPlayer.setAnimation(AnimationID.IDLE);
+		nearPlayer.setAnimation(TreeCountScenario.WOODCUTTING);
+		assertEquals(8, scenario.count(scenario.getTrees().get(0)));
+
+		scenario.setConfig("tickBudget", Integer.MAX_VALUE);
+		for (int i = 0; i < 10; i++)
+		{
+			scenario.tick();
+		}
+		assertFalse(scenario.getPlugin().getThrottle().isDegraded());
+		assertEquals(1, scenario.count(farTree));
+		assertEquals(9, scenario.totalCount());
+	}
+
+	@Test
+	public void testDeferredPlayerComesIntoView()
+	{
+		TreeCountScenario scenario = TreeCountScenario.seersMaples(8);
+		GameObject farTree = scenario.tree(10832, 2750, 3530, 1);
+		TreeCountScenario.StubPlayer farPlayer = scenario.chopperAround(farTree, 0);
+		scenario.setConfig("adaptiveThrottling", true);
+		scenario.setConfig("tickBudget", 0);
+		scenario.login();
+		for (int i = 0; i < 3; i++)
+		{
+			scenario.tick();
+		}
+		assertTrue(scenario.getPlugin().getThrottle().isDegraded());
+
+		farPlayer.setAnimation(AnimationID.IDLE);
+		farPlayer.setAnimation(TreeCountScenario.WOODCUTTING);
+		scenario.tick();
+		assertEquals(0, scenario.count(farTree));
+
+		// Walking up to the tree counts them without waiting for the throttle to recover
+		scenario.getLocalPlayer().setLocation(2748, 3526);
+		scenario.tick();
+		assertTrue(scenario.getPlugin().getThrottle().isDegraded());
+		assertEquals(1, scenario.count(farTree));
+	}
+
+	@Test
+	public void testAllocationsPerTick()
+	{
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+		assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+
+		TreeCountScenario scenario = TreeCountScenario.seersMaples(40);
+		// Measure the full sweep, a slow warm up could otherwise degrade to the sampled one
+		scenario.setConfig("adaptiveThrottling", false);
+		scenario.login();
+		List<TreeCountScenario.StubPlayer> choppers = scenario.getPlayers();
+
+		final int ticks = 500;
+		long threadId = Thread.currentThread().getId();
+		long before = 0;
+		for (int tick = 0; tick < ticks * 2; tick++)
+		{
+			if (tick == ticks)
+			{
+				// The first half warms up the maps and the JIT
+				before = allocationBean.getThreadAllocatedBytes(threadId);
+			}
+
+			// Every chopper wobbles just past the edge of the octant facing their tree each tick, which fires an
+			// orientation change for all of them and runs every neighbor probe of the hysteresis check
+			for (int i = 0; i < choppers.size(); i++)
+			{
+				int facing = ((i % 8) + 4) & 7;
+				choppers.get(i).setOrientation((facing * 256 + ((tick + i) % 2 == 0 ? 168 : -168)) & 2047);
+			}
+			scenario.tick();
+		}
+		long bytesPerTick = (allocationBean.getThreadAllocatedBytes(threadId) - before) / ticks;
+
+		assertEquals(40, scenario.totalCount());
+		assertTrue("Allocated " + bytesPerTick + " bytes per tick", bytesPerTick <= MAX_BYTES_PER_TICK);
+	}
+}